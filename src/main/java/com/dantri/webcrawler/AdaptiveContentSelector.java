@@ -0,0 +1,206 @@
+package com.dantri.webcrawler;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chọn selector nội dung theo từng template trang, ưu tiên selector đã thành công nhiều lần liên tiếp
+ */
+public class AdaptiveContentSelector {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveContentSelector.class);
+    private static final String UNKNOWN_TEMPLATE = "unknown";
+    private static final UrlRuleEngine URL_RULES = UrlRuleEngine.getDefault();
+    private static final int LEARN_THRESHOLD = 3;
+
+    private final List<String> selectors;
+    private final Evaluator[] evaluators;
+    // earlierEvaluators[i]: gộp các selector đứng trước i thành một truy vấn, null với i = 0
+    private final Evaluator[] earlierEvaluators;
+    private final Map<String, TemplateStats> statsByTemplate = new ConcurrentHashMap<>();
+
+    public AdaptiveContentSelector(List<String> selectors) {
+        this.selectors = selectors;
+        this.evaluators = new Evaluator[selectors.size()];
+        this.earlierEvaluators = new Evaluator[selectors.size()];
+        for (int i = 0; i < selectors.size(); i++) {
+            evaluators[i] = QueryParser.parse(selectors.get(i));
+            if (i > 0) {
+                earlierEvaluators[i] = QueryParser.parse(String.join(", ", selectors.subList(0, i)));
+            }
+        }
+    }
+
+    /**
+     * Lấy nội dung bài viết, cho kết quả giống hệt khi thử lần lượt các selector theo thứ tự.
+     * Selector đã học cho template chỉ được dùng khi không selector nào đứng trước nó có nội dung,
+     * việc kiểm tra này gộp thành một lần duyệt document. Trả về chuỗi rỗng nếu không selector nào khớp.
+     */
+    public String selectContent(Document doc, String url) {
+        return select(doc, url).getText();
+    }
+
+    /**
+     * Giống selectContent nhưng trả về cả các phần tử đã khớp
+     */
+    public Selection select(Document doc, String url) {
+        String template = detectTemplate(doc, url);
+        TemplateStats stats = statsByTemplate.computeIfAbsent(template, key -> new TemplateStats());
+
+        // Khoảng selector cần thử lại theo thứ tự [from, to)
+        int from = 0;
+        int to = evaluators.length;
+        int preferred = stats.preferredIndex;
+        if (preferred >= 0) {
+            Evaluator earlier = earlierEvaluators[preferred];
+            if (earlier == null || doc.select(earlier).text().isEmpty()) {
+                Elements elements = doc.select(evaluators[preferred]);
+                String content = elements.text();
+                if (!content.isEmpty()) {
+                    stats.hits.incrementAndGet();
+                    resetCandidate(stats);
+                    return new Selection(elements, content);
+                }
+                // Các selector đứng trước và selector đã học đều rỗng, chỉ còn các selector phía sau
+                from = preferred + 1;
+            } else {
+                // Có selector đứng trước có nội dung, kết quả nằm trong các selector đó
+                to = preferred;
+            }
+            stats.misses.incrementAndGet();
+        }
+
+        for (int i = from; i < to; i++) {
+            Elements elements = doc.select(evaluators[i]);
+            String content = elements.text();
+            if (!content.isEmpty()) {
+                stats.fallbacks.incrementAndGet();
+                learn(stats, i, template);
+                return new Selection(elements, content);
+            }
+        }
+
+        stats.notFound.incrementAndGet();
+        return new Selection(new Elements(), "");
+    }
+
+    private void resetCandidate(TemplateStats stats) {
+        synchronized (stats) {
+            stats.candidateIndex = -1;
+            stats.candidateStreak = 0;
+        }
+    }
+
+    // Chỉ thay selector ưu tiên khi cùng một selector khác thắng LEARN_THRESHOLD lần liên tiếp
+    private void learn(TemplateStats stats, int index, String template) {
+        synchronized (stats) {
+            if (stats.candidateIndex == index) {
+                stats.candidateStreak++;
+            } else {
+                stats.candidateIndex = index;
+                stats.candidateStreak = 1;
+            }
+            if (stats.candidateStreak >= LEARN_THRESHOLD && stats.preferredIndex != index) {
+                logger.debug("Learned content selector {} for template {}", selectors.get(index), template);
+                stats.preferredIndex = index;
+                stats.preferredSelector = selectors.get(index);
+            }
+        }
+    }
+
+    /**
+     * Ghi log tỉ lệ trúng selector đã học theo từng template
+     */
+    public void logStats() {
+        statsByTemplate.forEach((template, stats) -> {
+            long hits = stats.hits.get();
+            long misses = stats.misses.get();
+            long attempts = hits + misses;
+            double hitRate = attempts == 0 ? 0.0 : (double) hits / attempts;
+            logger.info("Content selector stats for template {}: selector={}, hits={}, misses={}, fallbacks={}, notFound={}, hitRate={}",
+                    template, stats.preferredSelector, hits, misses, stats.fallbacks.get(), stats.notFound.get(),
+                    String.format("%.2f", hitRate));
+        });
+    }
+
+    public Map<String, TemplateStats> getStatsByTemplate() {
+        return statsByTemplate;
+    }
+
+    // Nhận diện template từ class của thẻ body, nếu không có thì dùng chuyên mục trong URL
+    private String detectTemplate(Document doc, String url) {
+        Element body = doc.body();
+        if (body != null) {
+            String bodyClass = body.className().trim();
+            if (!bodyClass.isEmpty()) {
+                return bodyClass;
+            }
+        }
+        String category = URL_RULES.classify(url).category();
+        return category != null ? category : UNKNOWN_TEMPLATE;
+    }
+
+    /**
+     * Kết quả chọn nội dung: các phần tử đã khớp và nội dung text của chúng
+     */
+    public static class Selection {
+        private final Elements elements;
+        private final String text;
+
+        public Selection(Elements elements, String text) {
+            this.elements = elements;
+            this.text = text;
+        }
+
+        public Elements getElements() {
+            return elements;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Thống kê selector theo một template
+     */
+    public static class TemplateStats {
+        private volatile int preferredIndex = -1;
+        private volatile String preferredSelector;
+        private int candidateIndex = -1;
+        private int candidateStreak;
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong fallbacks = new AtomicLong();
+        private final AtomicLong notFound = new AtomicLong();
+
+        public String getPreferredSelector() {
+            return preferredSelector;
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getFallbacks() {
+            return fallbacks.get();
+        }
+
+        public long getNotFound() {
+            return notFound.get();
+        }
+    }
+}
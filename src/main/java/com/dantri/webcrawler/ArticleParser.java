@@ -3,11 +3,13 @@ package com.dantri.webcrawler;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.jsoup.HttpStatusException;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.Arrays;
@@ -30,7 +32,20 @@ public class ArticleParser {
             "div.e-magazine__body#content",
             "div[itemprop=\"articleBody\"]"
     );
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int MAX_PAGE_BYTES = 2 * 1024 * 1024;
+    // Cần có JSON-LD NewsArticle và phần mở đầu của thân bài trước khi được dừng đọc
+    private static final List<List<String>> REQUIRED_MARKERS = Arrays.asList(
+            Arrays.asList("\"NewsArticle\""),
+            Arrays.asList("singular-content", "e-magazine__body", "itemprop=\"articleBody\"")
+    );
+    // Các phần nằm sau thân bài: bài liên quan, bình luận, footer
+    private static final List<String> STOP_MARKERS = Arrays.asList(
+            "article-related",
+            "dt-comment",
+            "<footer"
+    );
+    private final AdaptiveContentSelector contentSelector = new AdaptiveContentSelector(CONTENT_SELECTORS);
+    private final PartialFetcher fetcher = new PartialFetcher("articles", USER_AGENT, MAX_PAGE_BYTES, REQUIRED_MARKERS, STOP_MARKERS, true);
 
     public Article parseArticle(String url) {
 //        logger.info("Parsing article: {}", url);
@@ -39,20 +54,21 @@ public class ArticleParser {
             try {
                 Thread.sleep(REQUEST_DELAY_MS);
 
-                Document doc = Jsoup.connect(url)
-                        .userAgent(USER_AGENT)
-                        .get();
-
-                JsonNode newsArticleNode = null;
-                for (org.jsoup.nodes.Element script : doc.select("script[type=\"application/ld+json\"]")) {
-                    JsonNode node = mapper.readTree(script.html());
-                    if (node.has("@type")) {
-                        String type = node.get("@type").asText();
-                        if (type.equals("NewsArticle")) {
-                            newsArticleNode = node;
-                            break;
-                        }
-                    }
+                PartialFetcher.Result result = fetcher.fetch(url, true);
+                Document doc = result.getDocument();
+                JsonNode newsArticleNode = findNewsArticle(doc);
+                AdaptiveContentSelector.Selection selection = newsArticleNode != null ? contentSelector.select(doc, url) : null;
+                String content = selection != null ? selection.getText() : "";
+
+                // Dừng sớm nhưng thiếu JSON-LD, thiếu nội dung hoặc thân bài bị cắt giữa chừng thì tải lại toàn bộ trang.
+                // Chạm giới hạn byte thì không tải lại vì lần sau cũng bị cắt ở cùng vị trí.
+                if (result.isStoppedEarly() && (content.isEmpty() || !isComplete(selection.getElements()))) {
+                    logger.debug("Partial fetch incomplete, refetching full page: {}", url);
+                    fetcher.recordRefetch();
+                    Thread.sleep(REQUEST_DELAY_MS);
+                    doc = fetcher.fetch(url, false).getDocument();
+                    newsArticleNode = findNewsArticle(doc);
+                    content = newsArticleNode != null ? contentSelector.selectContent(doc, url) : "";
                 }
 
                 if (newsArticleNode == null) {
@@ -85,15 +101,6 @@ public class ArticleParser {
                 OffsetDateTime offsetDateTime = OffsetDateTime.parse(publishTimeStr);
                 Date publishTime = Date.from(offsetDateTime.atZoneSameInstant(ZoneId.systemDefault()).toInstant());
 
-                // Lấy nội dung bài viết
-                String content = "";
-                for (String selector : CONTENT_SELECTORS) {
-                    content = doc.select(selector).text();
-                    if (!content.isEmpty()) {
-                        logger.debug("Found content using selector: {}", selector);
-                        break;
-                    }
-                }
                 if (content.isEmpty()) {
                     logger.warn("Could not parse content for URL: {}", url);
                 }
@@ -132,4 +139,37 @@ public class ArticleParser {
         }
         return null;
     }
+
+    // Phần tử đóng ngầm khi parser gặp cuối phần HTML đã đọc không có vị trí thẻ đóng, tức là bị cắt giữa chừng
+    private boolean isComplete(Elements elements) {
+        for (Element element : elements) {
+            if (!element.endSourceRange().isTracked()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private JsonNode findNewsArticle(Document doc) throws IOException {
+        for (Element script : doc.select("script[type=\"application/ld+json\"]")) {
+            JsonNode node = MapperHolder.MAPPER.readTree(script.html());
+            if (node.has("@type")) {
+                String type = node.get("@type").asText();
+                if (type.equals("NewsArticle")) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void logStats() {
+        contentSelector.logStats();
+        fetcher.logStats();
+    }
+
+    // Jackson chỉ được khởi tạo khi phân tích bài viết đầu tiên
+    private static class MapperHolder {
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+    }
 }
\ No newline at end of file
@@ -7,11 +7,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Lưu trữ bài viết vào file CSV, tổ chức theo cấu trúc thư mục
@@ -22,18 +22,19 @@ public class ArticleStorage {
     private static final String METADATA_FILE = "data/metadata.json";
     private static final SimpleDateFormat YEAR_FORMAT = new SimpleDateFormat("yyyy");
     private static final SimpleDateFormat MONTH_FORMAT = new SimpleDateFormat("MM");
-    private static final Pattern URL_TIMESTAMP_PATTERN = Pattern.compile(".*-(\\d{17})\\.htm");
-    private static final Pattern URL_CATEGORY_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/([^/]+)/.*");
+    private static final UrlRuleEngine URL_RULES = UrlRuleEngine.getDefault();
     private Date latestPublishTime; // Thời gian xuất bản mới nhất của bài viết đã lưu
     private Date oldestPublishTime; // Thời gian xuất bản cũ nhất của bài viết đã lưu
+    private boolean metadataLoaded; // Metadata chỉ được đọc khi cần lần đầu
+    private List<Article> savedArticles; // Bài viết mới lưu chờ xuất, null nếu không bật theo dõi
 
     public ArticleStorage() {
-        loadMetadata();
     }
 
-    public boolean saveArticle(Article article) {
+    public synchronized boolean saveArticle(Article article) {
         try {
-            String category = extractCategory(article.getUrl());
+            UrlRuleEngine.Classification classification = URL_RULES.classify(article.getUrl());
+            String category = classification.category();
             if (category == null) {
                 logger.warn("Could not determine category for URL: {}", article.getUrl());
                 return false;
@@ -45,7 +46,7 @@ public class ArticleStorage {
                 return false;
             }
 
-            String timestamp = extractTimestampFromUrl(article.getUrl());
+            String timestamp = classification.timestampText();
             if (timestamp == null) {
                 logger.warn("Could not extract timestamp from URL: {}", article.getUrl());
                 return false;
@@ -83,6 +84,9 @@ public class ArticleStorage {
             }
 
             updateMetadata(article.getPublishTime());
+            if (savedArticles != null) {
+                savedArticles.add(article);
+            }
             return true;
         } catch (Exception e) {
             logger.error("Error saving article: {}", article.getUrl(), e);
@@ -91,6 +95,7 @@ public class ArticleStorage {
     }
 
     private void updateMetadata(Date publishTime) {
+        ensureMetadataLoaded();
         boolean updated = false;
         if (latestPublishTime == null || publishTime.after(latestPublishTime)) {
             latestPublishTime = publishTime;
@@ -105,6 +110,12 @@ public class ArticleStorage {
         }
     }
 
+    private synchronized void ensureMetadataLoaded() {
+        if (!metadataLoaded) {
+            loadMetadata();
+            metadataLoaded = true;
+        }
+    }
 
     private void loadMetadata() {
         File metadataFile = new File(METADATA_FILE);
@@ -156,27 +167,34 @@ public class ArticleStorage {
         }
     }
 
-    public Date getLatestPublishTime() {
-        return latestPublishTime;
+    /**
+     * Bật ghi nhớ các bài viết mới lưu để xuất tăng dần, dùng với drainSavedArticles
+     */
+    public synchronized void enableSavedArticleTracking() {
+        if (savedArticles == null) {
+            savedArticles = new ArrayList<>();
+        }
     }
 
-    public Date getOldestPublishTime() {
-        return oldestPublishTime;
+    /**
+     * Lấy và xoá danh sách bài viết đã lưu kể từ lần gọi trước
+     */
+    public synchronized List<Article> drainSavedArticles() {
+        if (savedArticles == null || savedArticles.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Article> drained = savedArticles;
+        savedArticles = new ArrayList<>();
+        return drained;
     }
 
-    private String extractCategory(String url) {
-        Matcher matcher = URL_CATEGORY_PATTERN.matcher(url);
-        if (matcher.matches()) {
-            return matcher.group(1);
-        }
-        return null;
+    public Date getLatestPublishTime() {
+        ensureMetadataLoaded();
+        return latestPublishTime;
     }
 
-    private String extractTimestampFromUrl(String url) {
-        Matcher matcher = URL_TIMESTAMP_PATTERN.matcher(url);
-        if (matcher.matches()) {
-            return matcher.group(1);
-        }
-        return null;
+    public Date getOldestPublishTime() {
+        ensureMetadataLoaded();
+        return oldestPublishTime;
     }
 }
\ No newline at end of file
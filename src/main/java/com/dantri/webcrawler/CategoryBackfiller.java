@@ -0,0 +1,277 @@
+package com.dantri.webcrawler;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Thu thập lại bài viết cũ bằng cách duyệt song song các trang phân trang của từng chuyên mục
+ */
+public class CategoryBackfiller {
+    private static final Logger logger = LoggerFactory.getLogger(CategoryBackfiller.class);
+    private static final UrlRuleEngine URL_RULES = UrlRuleEngine.getDefault();
+    private static final String START_URL = URL_RULES.getHost();
+    private static final String CHECKPOINT_FILE = "data/backfill_checkpoint.json";
+    // Trang phân trang của chuyên mục: <host><category>/trang-<N><page suffix>
+    private static final String PAGE_PATH_FORMAT = "%s/trang-%d";
+    private static final int MAX_WORKERS = 4;
+    // Khoảng cách tối thiểu giữa hai request của tất cả worker cộng lại (tối đa ~2 request/giây)
+    private static final long MIN_REQUEST_INTERVAL_MS = 500;
+    private static final int MAX_PAGES_PER_CATEGORY = 1000;
+
+    private final LinkExtractor linkExtractor;
+    private final ArticleParser articleParser;
+    private final ArticleStorage articleStorage;
+    private final VisitedUrlsManager visitedUrlsManager;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, CategoryProgress> checkpoint;
+    private long nextRequestAt;
+
+    public CategoryBackfiller(LinkExtractor linkExtractor, ArticleParser articleParser, ArticleStorage articleStorage, VisitedUrlsManager visitedUrlsManager) {
+        this.linkExtractor = linkExtractor;
+        this.articleParser = articleParser;
+        this.articleStorage = articleStorage;
+        this.visitedUrlsManager = visitedUrlsManager;
+        this.checkpoint = loadCheckpoint();
+    }
+
+    /**
+     * Chạy backfill cho tất cả chuyên mục, mỗi chuyên mục một worker
+     */
+    public void backfill() {
+        long cutoffMillis = System.currentTimeMillis() - WebCrawler.SIX_MONTHS_MILLIS;
+        Date watermark = articleStorage.getOldestPublishTime();
+        if (watermark != null && watermark.getTime() <= cutoffMillis) {
+            logger.info("Stored history already reaches the retention cutoff (oldest: {}), nothing to backfill.", watermark);
+            return;
+        }
+
+        Set<String> categories = discoverCategories();
+        if (categories.isEmpty()) {
+            logger.warn("No categories found on {}, backfill aborted.", START_URL);
+            return;
+        }
+        logger.info("Starting backfill for {} categories, cutoff: {}", categories.size(), new Date(cutoffMillis));
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(categories.size(), MAX_WORKERS));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String category : categories) {
+                futures.add(executor.submit(() -> backfillCategory(category, cutoffMillis)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    logger.error("Backfill worker failed", e);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        logger.info("Finished backfill.");
+    }
+
+    // Duyệt các trang trang-N của một chuyên mục cho tới khi gặp bài viết cũ hơn mốc lưu giữ
+    private void backfillCategory(String category, long cutoffMillis) {
+        CategoryProgress progress = getProgress(category);
+        if (progress.isCompleted()) {
+            logger.info("Category {} already backfilled, skipping.", category);
+            return;
+        }
+
+        int saved = 0;
+        while (progress.getNextPage() <= MAX_PAGES_PER_CATEGORY) {
+            String pageUrl = START_URL + String.format(PAGE_PATH_FORMAT, category, progress.getNextPage()) + URL_RULES.getPageSuffix();
+            if (!throttle()) {
+                break;
+            }
+            Set<String> outlinks = linkExtractor.tryExtractLinks(pageUrl);
+            if (outlinks == null) {
+                // Lỗi tạm thời: giữ nguyên nextPage để lần chạy sau tiếp tục từ trang này
+                logger.warn("Could not fetch {}, stopping category {} for this run.", pageUrl, category);
+                break;
+            }
+
+            boolean foundArticle = false;
+            boolean reachedCutoff = false;
+            Long pageOldest = null;
+            for (String outlink : outlinks) {
+                Long timestamp = extractCategoryArticleTimestamp(outlink, category);
+                if (timestamp == null) {
+                    continue;
+                }
+                foundArticle = true;
+                if (timestamp < cutoffMillis) {
+                    reachedCutoff = true;
+                    continue;
+                }
+                if (pageOldest == null || timestamp < pageOldest) {
+                    pageOldest = timestamp;
+                }
+                if (visitedUrlsManager.isVisited(outlink)) {
+                    continue;
+                }
+                if (!throttle()) {
+                    return;
+                }
+                visitedUrlsManager.addVisitedUrl(outlink);
+                Article article = articleParser.parseArticle(outlink);
+                if (article != null && article.getPublishTime() != null
+                        && article.getPublishTime().getTime() >= cutoffMillis
+                        && articleStorage.saveArticle(article)) {
+                    saved++;
+                }
+            }
+
+            advance(progress, pageOldest, !foundArticle || reachedCutoff);
+            if (progress.isCompleted()) {
+                break;
+            }
+        }
+
+        logger.info("Backfill of category {} stopped at page {}, saved {} articles.", category, progress.getNextPage() - 1, saved);
+    }
+
+    // Cập nhật tiến độ sau một trang và lưu checkpoint, cùng khoá với saveCheckpoint để không ghi ra trạng thái dở dang
+    private synchronized void advance(CategoryProgress progress, Long pageOldest, boolean completed) {
+        progress.setNextPage(progress.getNextPage() + 1);
+        if (pageOldest != null && (progress.getOldestTimestamp() == null || pageOldest < progress.getOldestTimestamp())) {
+            progress.setOldestTimestamp(pageOldest);
+        }
+        if (completed) {
+            progress.setCompleted(true);
+        }
+        saveCheckpoint();
+    }
+
+    // Giới hạn tốc độ request chung cho mọi worker, trả về false nếu bị ngắt
+    private boolean throttle() {
+        long waitMs;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long slot = Math.max(now, nextRequestAt);
+            nextRequestAt = slot + MIN_REQUEST_INTERVAL_MS;
+            waitMs = slot - now;
+        }
+        if (waitMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(waitMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Backfill interrupted while waiting for request slot.");
+            return false;
+        }
+    }
+
+    // Lấy danh sách chuyên mục cấp 1 từ trang chủ
+    private Set<String> discoverCategories() {
+        Set<String> categories = new TreeSet<>();
+        for (String link : linkExtractor.extractLinks(START_URL)) {
+            UrlRuleEngine.Classification classification = URL_RULES.classify(link);
+            String category = classification.category();
+            if (classification.isCategory() && classification.depth() == 1 && category != null) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    private Long extractCategoryArticleTimestamp(String url, String category) {
+        UrlRuleEngine.Classification classification = URL_RULES.classify(url);
+        if (!classification.isArticle() || !category.equals(classification.category())) {
+            return null;
+        }
+        Long timestamp = classification.timestampMillis();
+        if (timestamp == null) {
+            logger.debug("Invalid timestamp in URL: {}", url);
+        }
+        return timestamp;
+    }
+
+    private synchronized CategoryProgress getProgress(String category) {
+        return checkpoint.computeIfAbsent(category, key -> new CategoryProgress());
+    }
+
+    private Map<String, CategoryProgress> loadCheckpoint() {
+        File file = new File(CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return new HashMap<>();
+        }
+
+        try (FileReader reader = new FileReader(file)) {
+            Map<String, CategoryProgress> loaded = mapper.readValue(reader, new TypeReference<Map<String, CategoryProgress>>() {});
+            logger.info("Loaded backfill checkpoint for {} categories.", loaded.size());
+            return new HashMap<>(loaded);
+        } catch (Exception e) {
+            logger.error("Error loading backfill checkpoint", e);
+            return new HashMap<>();
+        }
+    }
+
+    // Ghi ra file tạm rồi đổi tên, nếu tiến trình dừng giữa chừng thì checkpoint cũ vẫn còn nguyên
+    private synchronized void saveCheckpoint() {
+        try {
+            File file = new File(CHECKPOINT_FILE);
+            File dir = file.getParentFile();
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            File tmp = new File(CHECKPOINT_FILE + ".tmp");
+            try (FileWriter writer = new FileWriter(tmp)) {
+                mapper.writeValue(writer, checkpoint);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            logger.error("Error saving backfill checkpoint", e);
+        }
+    }
+
+    /**
+     * Tiến độ backfill của một chuyên mục
+     */
+    public static class CategoryProgress {
+        private int nextPage = 1;
+        private Long oldestTimestamp;
+        private boolean completed;
+
+        public int getNextPage() {
+            return nextPage;
+        }
+
+        public void setNextPage(int nextPage) {
+            this.nextPage = nextPage;
+        }
+
+        public Long getOldestTimestamp() {
+            return oldestTimestamp;
+        }
+
+        public void setOldestTimestamp(Long oldestTimestamp) {
+            this.oldestTimestamp = oldestTimestamp;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public void setCompleted(boolean completed) {
+            this.completed = completed;
+        }
+    }
+}
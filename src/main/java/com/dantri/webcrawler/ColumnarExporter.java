@@ -0,0 +1,197 @@
+package com.dantri.webcrawler;
+
+import com.opencsv.CSVReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileReader;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Chuyển bài viết đã lưu sang định dạng cột nén, mỗi tháng một thư mục export/yyyy-MM.
+ *
+ * exportAll đọc lại toàn bộ CSV và ghi mỗi tháng thành một file full.dcol, đồng thời xoá các file run-*.dcol cũ hơn.
+ * exportIncremental chỉ ghi các bài viết vừa lưu trong lần crawl này thành file run-<millis>.dcol mới,
+ * không đọc lại hay ghi đè dữ liệu cũ. Người đọc cần đọc tất cả file .dcol trong thư mục tháng.
+ * Nên chạy exportAll khi crawler định kỳ không chạy để tránh trùng hoặc sót bài giữa hai loại file.
+ */
+public class ColumnarExporter {
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarExporter.class);
+    private static final String BASE_DIR = "data";
+    private static final String EXPORT_DIR = "export";
+    private static final String FULL_FILE = "full.dcol";
+    private static final String RUN_FILE_PREFIX = "run-";
+    private static final String EXPORT_EXTENSION = ".dcol";
+    // Date.toString() không có múi giờ dạng offset, bỏ phần tên múi giờ và hiểu theo múi giờ hệ thống đã ghi ra file
+    private static final String DATE_TO_STRING_FORMAT = "EEE MMM dd HH:mm:ss yyyy";
+    private static final UrlRuleEngine URL_RULES = UrlRuleEngine.getDefault();
+
+    private final ArticleStorage articleStorage;
+
+    public ColumnarExporter(ArticleStorage articleStorage) {
+        this.articleStorage = articleStorage;
+        articleStorage.enableSavedArticleTracking();
+    }
+
+    /**
+     * Xuất lại toàn bộ các phân vùng tháng từ CSV. Dòng được đọc từng file CSV và ghi thẳng vào từng block,
+     * không giữ cả tháng trong bộ nhớ.
+     */
+    public void exportAll() {
+        long startedAt = System.currentTimeMillis();
+        Map<String, List<CategoryFile>> partitions = collectPartitions();
+        int exported = 0;
+        for (Map.Entry<String, List<CategoryFile>> entry : partitions.entrySet()) {
+            String partition = entry.getKey();
+            File dir = new File(EXPORT_DIR, partition);
+            File target = new File(dir, FULL_FILE);
+            try {
+                createDir(dir);
+                try (ColumnarFile.Writer writer = new ColumnarFile.Writer(target)) {
+                    writePartition(entry.getValue(), writer);
+                    writer.commit();
+                    logger.info("Exported {} articles from {} files to {}", writer.getRowCount(), entry.getValue().size(), target);
+                }
+                deleteRunFiles(dir, startedAt);
+                exported++;
+            } catch (Exception e) {
+                logger.error("Error exporting partition: {}", partition, e);
+            }
+        }
+        logger.info("Columnar export finished, {} of {} partitions written.", exported, partitions.size());
+    }
+
+    /**
+     * Ghi các bài viết vừa được lưu kể từ lần gọi trước thành file mới trong từng phân vùng tháng
+     */
+    public void exportIncremental() {
+        List<Article> articles = articleStorage.drainSavedArticles();
+        if (articles.isEmpty()) {
+            return;
+        }
+
+        SimpleDateFormat partitionFormat = new SimpleDateFormat("yyyy-MM");
+        Map<String, List<ColumnarFile.Row>> partitions = new TreeMap<>();
+        for (Article article : articles) {
+            String category = URL_RULES.classify(article.getUrl()).category();
+            ColumnarFile.Row row = new ColumnarFile.Row(article.getUrl(), article.getTitle(), article.getDescription(),
+                    article.getContent(), article.getPublishTime().getTime(), article.getAuthor(), category);
+            partitions.computeIfAbsent(partitionFormat.format(article.getPublishTime()), key -> new ArrayList<>()).add(row);
+        }
+
+        String runFile = RUN_FILE_PREFIX + System.currentTimeMillis() + EXPORT_EXTENSION;
+        for (Map.Entry<String, List<ColumnarFile.Row>> entry : partitions.entrySet()) {
+            try {
+                writeRows(new File(new File(EXPORT_DIR, entry.getKey()), runFile), entry.getValue());
+            } catch (Exception e) {
+                logger.error("Error exporting new articles for partition: {}", entry.getKey(), e);
+            }
+        }
+        logger.info("Incremental columnar export wrote {} articles to {} partitions.", articles.size(), partitions.size());
+    }
+
+    private void writeRows(File target, List<ColumnarFile.Row> rows) throws Exception {
+        createDir(target.getParentFile());
+        ColumnarFile.write(target, rows);
+        logger.info("Exported {} articles to {}", rows.size(), target);
+    }
+
+    private void createDir(File dir) {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+    }
+
+    private void deleteRunFiles(File dir, long olderThan) {
+        File[] runFiles = dir.listFiles((d, name) -> name.startsWith(RUN_FILE_PREFIX) && name.endsWith(EXPORT_EXTENSION));
+        if (runFiles == null) {
+            return;
+        }
+        for (File runFile : runFiles) {
+            if (runFile.lastModified() < olderThan && !runFile.delete()) {
+                logger.warn("Could not delete merged export file: {}", runFile);
+            }
+        }
+    }
+
+    private void writePartition(List<CategoryFile> files, ColumnarFile.Writer writer) throws Exception {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_TO_STRING_FORMAT, Locale.US);
+        for (CategoryFile categoryFile : files) {
+            try (CSVReader reader = new CSVReader(new FileReader(categoryFile.file))) {
+                reader.readNext(); // Bỏ qua header
+                String[] data;
+                while ((data = reader.readNext()) != null) {
+                    if (data.length < 6) {
+                        continue;
+                    }
+                    Long publishTime = parsePublishTime(dateFormat, data[4], data[0]);
+                    if (publishTime == null) {
+                        logger.warn("Invalid publish time in file: {}", categoryFile.file);
+                        continue;
+                    }
+                    writer.add(new ColumnarFile.Row(data[0], data[1], data[2], data[3], publishTime, data[5], categoryFile.category));
+                }
+            }
+        }
+    }
+
+    // Bỏ tên múi giờ (CST, IST... không xác định duy nhất) khỏi chuỗi Date.toString(), nếu không được thì dùng timestamp trong URL
+    private Long parsePublishTime(SimpleDateFormat dateFormat, String value, String url) {
+        String[] parts = value.trim().split("\\s+");
+        if (parts.length == 6) {
+            try {
+                String withoutZone = String.join(" ", parts[0], parts[1], parts[2], parts[3], parts[5]);
+                return dateFormat.parse(withoutZone).getTime();
+            } catch (Exception e) {
+                logger.debug("Could not parse publish time: {}", value);
+            }
+        }
+
+        return URL_RULES.classify(url).timestampMillis();
+    }
+
+    // Gom các file CSV data/<category>/<yyyy>/<MM>/*.csv theo phân vùng yyyy-MM
+    private Map<String, List<CategoryFile>> collectPartitions() {
+        Map<String, List<CategoryFile>> partitions = new TreeMap<>();
+        File[] categoryDirs = new File(BASE_DIR).listFiles(File::isDirectory);
+        if (categoryDirs == null) {
+            return partitions;
+        }
+        for (File categoryDir : categoryDirs) {
+            File[] yearDirs = categoryDir.listFiles(File::isDirectory);
+            if (yearDirs == null) {
+                continue;
+            }
+            for (File yearDir : yearDirs) {
+                File[] monthDirs = yearDir.listFiles(File::isDirectory);
+                if (monthDirs == null) {
+                    continue;
+                }
+                for (File monthDir : monthDirs) {
+                    File[] csvFiles = monthDir.listFiles((dir, name) -> name.endsWith(".csv"));
+                    if (csvFiles == null) {
+                        continue;
+                    }
+                    String partition = yearDir.getName() + "-" + monthDir.getName();
+                    List<CategoryFile> files = partitions.computeIfAbsent(partition, key -> new ArrayList<>());
+                    for (File csvFile : csvFiles) {
+                        files.add(new CategoryFile(categoryDir.getName(), csvFile));
+                    }
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private static class CategoryFile {
+        private final String category;
+        private final File file;
+
+        CategoryFile(String category, File file) {
+            this.category = category;
+            this.file = file;
+        }
+    }
+}
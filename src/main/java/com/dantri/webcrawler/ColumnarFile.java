@@ -0,0 +1,484 @@
+package com.dantri.webcrawler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Định dạng file dạng cột, nén theo block dùng cho xuất dữ liệu phân tích.
+ *
+ * Bố cục file: MAGIC, VERSION, các block dữ liệu, footer, vị trí footer, MAGIC.
+ * Mỗi block chứa tối đa BLOCK_SIZE bài viết, mỗi cột được nén riêng bằng Deflate để có thể đọc riêng lẻ.
+ * Footer lưu số dòng, min/max publishTime và vị trí từng cột của mỗi block để bỏ qua block không cần đọc.
+ */
+public class ColumnarFile {
+    private static final int MAGIC = 0x44434F4C; // "DCOL"
+    private static final int VERSION = 1;
+    static final int BLOCK_SIZE = 1024;
+
+    public enum Column {
+        URL, TITLE, DESCRIPTION, CONTENT, PUBLISH_TIME, AUTHOR, CATEGORY
+    }
+
+    /**
+     * Một dòng dữ liệu xuất ra
+     */
+    public static class Row {
+        private final String url;
+        private final String title;
+        private final String description;
+        private final String content;
+        private final long publishTime;
+        private final String author;
+        private final String category;
+
+        public Row(String url, String title, String description, String content, long publishTime, String author, String category) {
+            this.url = url;
+            this.title = title;
+            this.description = description;
+            this.content = content;
+            this.publishTime = publishTime;
+            this.author = author;
+            this.category = category;
+        }
+
+        public long getPublishTime() {
+            return publishTime;
+        }
+
+        private String get(Column column) {
+            return switch (column) {
+                case URL -> url;
+                case TITLE -> title;
+                case DESCRIPTION -> description;
+                case CONTENT -> content;
+                case AUTHOR -> author;
+                case CATEGORY -> category;
+                case PUBLISH_TIME -> throw new IllegalArgumentException("PUBLISH_TIME is not a string column");
+            };
+        }
+    }
+
+    /**
+     * Thống kê và vị trí các cột của một block, lưu trong footer
+     */
+    public static class BlockInfo {
+        private final int rowCount;
+        private final long minPublishTime;
+        private final long maxPublishTime;
+        private final long[] columnOffsets;
+        private final int[] columnLengths;
+
+        BlockInfo(int rowCount, long minPublishTime, long maxPublishTime, long[] columnOffsets, int[] columnLengths) {
+            this.rowCount = rowCount;
+            this.minPublishTime = minPublishTime;
+            this.maxPublishTime = maxPublishTime;
+            this.columnOffsets = columnOffsets;
+            this.columnLengths = columnLengths;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public long getMinPublishTime() {
+            return minPublishTime;
+        }
+
+        public long getMaxPublishTime() {
+            return maxPublishTime;
+        }
+
+        boolean overlaps(long from, long to) {
+            return maxPublishTime >= from && minPublishTime <= to;
+        }
+    }
+
+    /**
+     * Ghi danh sách dòng ra file, sắp xếp theo publishTime để delta nhỏ và thống kê block chặt hơn
+     */
+    public static void write(File file, List<Row> rows) throws IOException {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingLong(Row::getPublishTime));
+
+        try (Writer writer = new Writer(file)) {
+            for (Row row : sorted) {
+                writer.add(row);
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Ghi file theo từng block, chỉ giữ trong bộ nhớ tối đa BLOCK_SIZE dòng.
+     *
+     * Mỗi block được sắp xếp theo publishTime trước khi ghi, nhưng các block không được sắp xếp với nhau,
+     * nên khoảng thời gian của các block có thể chồng lên nhau. Dữ liệu ghi vào file tạm, commit mới ghi footer
+     * và đổi tên thành file đích. Đóng mà chưa commit thì xoá file tạm, file đích cũ giữ nguyên.
+     */
+    public static class Writer implements Closeable {
+        private final File file;
+        private final File tmp;
+        private final CountingOutputStream counter;
+        private final DataOutputStream out;
+        private final List<Row> pending = new ArrayList<>(BLOCK_SIZE);
+        private final List<BlockInfo> blocks = new ArrayList<>();
+        private int rowCount;
+        private boolean committed;
+        private boolean closed;
+
+        public Writer(File file) throws IOException {
+            this.file = file;
+            this.tmp = new File(file.getPath() + ".tmp");
+            this.counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            this.out = new DataOutputStream(counter);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void add(Row row) throws IOException {
+            pending.add(row);
+            rowCount++;
+            if (pending.size() == BLOCK_SIZE) {
+                writeBlock();
+            }
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Ghi block cuối và footer, rồi thay file đích bằng file vừa ghi
+         */
+        public void commit() throws IOException {
+            if (!pending.isEmpty()) {
+                writeBlock();
+            }
+            out.flush();
+            long footerOffset = counter.getCount();
+            out.writeInt(blocks.size());
+            for (BlockInfo block : blocks) {
+                out.writeInt(block.rowCount);
+                out.writeLong(block.minPublishTime);
+                out.writeLong(block.maxPublishTime);
+                for (int i = 0; i < block.columnOffsets.length; i++) {
+                    out.writeLong(block.columnOffsets[i]);
+                    out.writeInt(block.columnLengths[i]);
+                }
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            closed = true;
+            out.close();
+
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                out.close();
+            }
+            if (!committed) {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            pending.sort(Comparator.comparingLong(Row::getPublishTime));
+            Column[] columns = Column.values();
+            long[] offsets = new long[columns.length];
+            int[] lengths = new int[columns.length];
+            for (Column column : columns) {
+                byte[] chunk = compress(encodeColumn(pending, column));
+                out.flush();
+                offsets[column.ordinal()] = counter.getCount();
+                lengths[column.ordinal()] = chunk.length;
+                out.write(chunk);
+            }
+            blocks.add(new BlockInfo(pending.size(), pending.get(0).getPublishTime(),
+                    pending.get(pending.size() - 1).getPublishTime(), offsets, lengths));
+            pending.clear();
+        }
+    }
+
+    /**
+     * Đọc footer để lấy thống kê các block
+     */
+    public static List<BlockInfo> readBlocks(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return readFooter(raf);
+        }
+    }
+
+    /**
+     * Đọc một cột chuỗi, chỉ giải nén các block có publishTime nằm trong khoảng [from, to]
+     */
+    public static List<String> readStringColumn(File file, Column column, long from, long to) throws IOException {
+        if (column == Column.PUBLISH_TIME) {
+            throw new IllegalArgumentException("Use readPublishTimes for PUBLISH_TIME");
+        }
+        List<String> values = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (BlockInfo block : readFooter(raf)) {
+                if (!block.overlaps(from, to)) {
+                    continue;
+                }
+                DataInputStream in = readChunk(raf, block, column);
+                long[] times = block.minPublishTime >= from && block.maxPublishTime <= to
+                        ? null
+                        : decodeTimes(readChunk(raf, block, Column.PUBLISH_TIME), block.rowCount);
+                List<String> decoded = isDictionaryColumn(column)
+                        ? decodeDictionary(in, block.rowCount)
+                        : decodeStrings(in, block.rowCount);
+                for (int i = 0; i < decoded.size(); i++) {
+                    if (times == null || (times[i] >= from && times[i] <= to)) {
+                        values.add(decoded.get(i));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Đọc cột publishTime trong khoảng [from, to]
+     */
+    public static List<Long> readPublishTimes(File file, long from, long to) throws IOException {
+        List<Long> values = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            for (BlockInfo block : readFooter(raf)) {
+                if (!block.overlaps(from, to)) {
+                    continue;
+                }
+                for (long time : decodeTimes(readChunk(raf, block, Column.PUBLISH_TIME), block.rowCount)) {
+                    if (time >= from && time <= to) {
+                        values.add(time);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private static boolean isDictionaryColumn(Column column) {
+        return column == Column.AUTHOR || column == Column.CATEGORY;
+    }
+
+    private static byte[] encodeColumn(List<Row> block, Column column) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (column == Column.PUBLISH_TIME) {
+            // Delta encoding: giá trị đầu tuyệt đối, các giá trị sau là hiệu với giá trị trước
+            long previous = 0;
+            for (Row row : block) {
+                writeVarLong(out, zigzag(row.getPublishTime() - previous));
+                previous = row.getPublishTime();
+            }
+        } else if (isDictionaryColumn(column)) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            int[] ids = new int[block.size()];
+            for (int i = 0; i < block.size(); i++) {
+                ids[i] = dictionary.computeIfAbsent(nullToEmpty(block.get(i).get(column)), key -> dictionary.size());
+            }
+            writeVarLong(out, dictionary.size());
+            for (String value : dictionary.keySet()) {
+                writeString(out, value);
+            }
+            for (int id : ids) {
+                writeVarLong(out, id);
+            }
+        } else {
+            for (Row row : block) {
+                writeString(out, nullToEmpty(row.get(column)));
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static long[] decodeTimes(DataInputStream in, int rowCount) throws IOException {
+        long[] times = new long[rowCount];
+        long previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+            previous += unzigzag(readVarLong(in));
+            times[i] = previous;
+        }
+        return times;
+    }
+
+    private static List<String> decodeDictionary(DataInputStream in, int rowCount) throws IOException {
+        int size = (int) readVarLong(in);
+        String[] dictionary = new String[size];
+        for (int i = 0; i < size; i++) {
+            dictionary[i] = readString(in);
+        }
+        List<String> values = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            values.add(dictionary[(int) readVarLong(in)]);
+        }
+        return values;
+    }
+
+    private static List<String> decodeStrings(DataInputStream in, int rowCount) throws IOException {
+        List<String> values = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static List<BlockInfo> readFooter(RandomAccessFile raf) throws IOException {
+        raf.seek(0);
+        if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+            throw new IOException("Not a columnar export file");
+        }
+        raf.seek(raf.length() - 12);
+        long footerOffset = raf.readLong();
+        if (raf.readInt() != MAGIC) {
+            throw new IOException("Corrupted columnar export file");
+        }
+
+        raf.seek(footerOffset);
+        int blockCount = raf.readInt();
+        int columnCount = Column.values().length;
+        List<BlockInfo> blocks = new ArrayList<>(blockCount);
+        for (int b = 0; b < blockCount; b++) {
+            int rowCount = raf.readInt();
+            long min = raf.readLong();
+            long max = raf.readLong();
+            long[] offsets = new long[columnCount];
+            int[] lengths = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                offsets[i] = raf.readLong();
+                lengths[i] = raf.readInt();
+            }
+            blocks.add(new BlockInfo(rowCount, min, max, offsets, lengths));
+        }
+        return blocks;
+    }
+
+    private static DataInputStream readChunk(RandomAccessFile raf, BlockInfo block, Column column) throws IOException {
+        byte[] chunk = new byte[block.columnLengths[column.ordinal()]];
+        raf.seek(block.columnOffsets[column.ordinal()]);
+        raf.readFully(chunk);
+        return new DataInputStream(new ByteArrayInputStream(decompress(chunk)));
+    }
+
+    private static byte[] compress(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated column chunk");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid column chunk", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Đếm số byte đã ghi để tính vị trí các cột
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.dantri.webcrawler;
+
+import org.quartz.*;
+import org.quartz.impl.StdSchedulerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Khởi tạo Quartz để chạy WebCrawler định kỳ, tách riêng để chế độ chạy một lần không phải nạp Quartz
+ */
+public class CrawlScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(CrawlScheduler.class);
+
+    public static void start(WebCrawler webCrawler, ColumnarExporter columnarExporter) {
+        try {
+            Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
+
+            JobDetail job = JobBuilder.newJob(CrawlWebsiteJob.class)
+                    .withIdentity("crawlWebsiteJob", "default")
+                    .build();
+
+            job.getJobDataMap().put("webCrawler", webCrawler);
+            job.getJobDataMap().put("columnarExporter", columnarExporter);
+
+            Trigger trigger = TriggerBuilder.newTrigger()
+                    .withIdentity("crawlTrigger", "default")
+                    .startNow()
+                    .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                            .withIntervalInMinutes(5)
+                            .repeatForever())
+                    .build();
+
+            scheduler.scheduleJob(job, trigger);
+            scheduler.start();
+
+            logger.info("Web crawler started");
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    scheduler.shutdown(true);
+                    logger.info("Scheduler shut down successfully.");
+                } catch (SchedulerException e) {
+                    logger.error("Error shutting down scheduler", e);
+                }
+            }));
+        } catch (SchedulerException e) {
+            logger.error("Error starting web crawler", e);
+        }
+    }
+}
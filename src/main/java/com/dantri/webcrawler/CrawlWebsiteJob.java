@@ -38,5 +38,11 @@ public class CrawlWebsiteJob implements Job {
         } finally {
             lock.unlock();
         }
+
+        // Xuất bài viết mới ngoài khoá crawl
+        ColumnarExporter exporter = (ColumnarExporter) context.getJobDetail().getJobDataMap().get("columnarExporter");
+        if (exporter != null) {
+            exporter.exportIncremental();
+        }
     }
 }
\ No newline at end of file
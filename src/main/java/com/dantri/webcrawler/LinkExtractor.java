@@ -1,15 +1,14 @@
 package com.dantri.webcrawler;
 
 import org.jsoup.HttpStatusException;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 /**
  * Lấy outlinks từ một trang web
@@ -20,23 +19,33 @@ public class LinkExtractor {
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_DELAY_MS = 1000;
     private static final long REQUEST_DELAY_MS = 300;
-    private static final Pattern DANTRI_URL_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/.*");
+    private static final UrlRuleEngine URL_RULES = UrlRuleEngine.getDefault();
+    private static final int MAX_PAGE_BYTES = 3 * 1024 * 1024;
+    private final PartialFetcher fetcher = new PartialFetcher("links", USER_AGENT, MAX_PAGE_BYTES,
+            Collections.emptyList(), Collections.singletonList("<footer"), false); // Bỏ qua footer, các link này lặp lại ở mọi trang
 
 
     public Set<String> extractLinks(String url) {
+        Set<String> links = tryExtractLinks(url);
+        return links != null ? links : new HashSet<>();
+    }
+
+    /**
+     * Giống extractLinks nhưng trả về null khi không tải được trang (429, lỗi mạng, bị ngắt),
+     * để phân biệt với trang tải thành công mà không có link. Trang 404 được coi là trang rỗng.
+     */
+    public Set<String> tryExtractLinks(String url) {
         Set<String> links = new HashSet<>();
         logger.debug("Extracting links from: {}", url);
 
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
             try {
                 Thread.sleep(REQUEST_DELAY_MS);
-                Document doc = Jsoup.connect(url)
-                        .userAgent(USER_AGENT)
-                        .get();
+                Document doc = fetcher.fetch(url, true).getDocument();
 
                 doc.select("a[href]").forEach(element -> {
                     String href = element.attr("abs:href");
-                    if (DANTRI_URL_PATTERN.matcher(href).matches()) {
+                    if (URL_RULES.classify(href).hostMatch()) {
                         links.add(href);
                     }
                 });
@@ -48,26 +57,33 @@ public class LinkExtractor {
                     logger.warn("Received 429 error for URL: {}. Attempt {}/{}, retrying after {}ms", url, attempt, MAX_RETRIES, RETRY_DELAY_MS);
                     if (attempt == MAX_RETRIES) {
                         logger.error("Max retries reached for URL: {}", url, e);
-                        return links;
+                        return null;
                     }
                     try {
                         Thread.sleep(RETRY_DELAY_MS);
                     } catch (InterruptedException ie) {
                         logger.error("Retry interrupted for URL: {}", url, ie);
-                        return links;
+                        return null;
                     }
+                } else if (e.getStatusCode() == 404) {
+                    logger.debug("Page not found: {}", url);
+                    return links;
                 } else {
                     logger.error("Error extracting links from: {}", url, e);
-                    return links;
+                    return null;
                 }
             } catch (IOException e) {
                 logger.error("Error extracting links from: {}", url, e);
-                return links;
+                return null;
             } catch (InterruptedException e) {
                 logger.error("Request delay interrupted for URL: {}", url, e);
-                return links;
+                return null;
             }
         }
-        return links;
+        return null;
+    }
+
+    public void logStats() {
+        fetcher.logStats();
     }
 }
\ No newline at end of file
@@ -1,7 +1,5 @@
 package com.dantri.webcrawler;
 
-import org.quartz.*;
-import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,44 +7,41 @@ public class MainCrawler {
     private static final Logger logger = LoggerFactory.getLogger(MainCrawler.class);
 
     public static void main(String[] args) {
-        try {
-            LinkExtractor linkExtractor = new LinkExtractor();
-            ArticleParser articleParser = new ArticleParser();
-            ArticleStorage articleStorage = new ArticleStorage();
-            VisitedUrlsManager visitedUrlsManager = new VisitedUrlsManager();
-            WebCrawler webCrawler = new WebCrawler(linkExtractor, articleParser, articleStorage, visitedUrlsManager);
-
-            Scheduler scheduler = StdSchedulerFactory.getDefaultScheduler();
-
-            JobDetail job = JobBuilder.newJob(CrawlWebsiteJob.class)
-                    .withIdentity("crawlWebsiteJob", "default")
-                    .build();
-
-            job.getJobDataMap().put("webCrawler", webCrawler);
-
-            Trigger trigger = TriggerBuilder.newTrigger()
-                    .withIdentity("crawlTrigger", "default")
-                    .startNow()
-                    .withSchedule(SimpleScheduleBuilder.simpleSchedule()
-                            .withIntervalInMinutes(5)
-                            .repeatForever())
-                    .build();
+        LinkExtractor linkExtractor = new LinkExtractor();
+        ArticleParser articleParser = new ArticleParser();
+        ArticleStorage articleStorage = new ArticleStorage();
+        VisitedUrlsManager visitedUrlsManager = new VisitedUrlsManager();
+
+        if (args.length > 0 && "backfill".equals(args[0])) {
+            CategoryBackfiller backfiller = new CategoryBackfiller(linkExtractor, articleParser, articleStorage, visitedUrlsManager);
+            backfiller.backfill();
+            return;
+        }
 
-            scheduler.scheduleJob(job, trigger);
-            scheduler.start();
+        ColumnarExporter columnarExporter = new ColumnarExporter(articleStorage);
+        if (args.length > 0 && "export".equals(args[0])) {
+            columnarExporter.exportAll();
+            return;
+        }
 
-            logger.info("Web crawler started");
+        WebCrawler webCrawler = new WebCrawler(linkExtractor, articleParser, articleStorage, visitedUrlsManager);
 
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        // Chạy một lần rồi thoát, dùng cho cron/container: "once [maxUrls]"
+        if (args.length > 0 && "once".equals(args[0])) {
+            int maxUrls = WebCrawler.MAX_URLS_PER_CRAWL;
+            if (args.length > 1) {
                 try {
-                    scheduler.shutdown(true);
-                    logger.info("Scheduler shut down successfully.");
-                } catch (SchedulerException e) {
-                    logger.error("Error shutting down scheduler", e);
+                    maxUrls = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid max URLs argument: {}, using default {}", args[1], maxUrls);
                 }
-            }));
-        } catch (SchedulerException e) {
-            logger.error("Error starting web crawler", e);
+            }
+            webCrawler.crawl(maxUrls);
+            columnarExporter.exportIncremental();
+            logger.info("One-shot crawl finished.");
+            return;
         }
+
+        CrawlScheduler.start(webCrawler, columnarExporter);
     }
-}
\ No newline at end of file
+}
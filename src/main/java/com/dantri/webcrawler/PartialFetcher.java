@@ -0,0 +1,404 @@
+package com.dantri.webcrawler;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.jsoup.nodes.Document;
+import org.jsoup.parser.Parser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Tải trang theo từng phần và dừng đọc sớm khi đã đọc đủ các phần cần thiết.
+ *
+ * Mỗi nhóm trong requiredMarkerGroups cần xuất hiện ít nhất một marker. Sau khi tất cả các nhóm đã xuất hiện,
+ * gặp một stopMarker thì dừng đọc và chỉ phân tích phần HTML trước stopMarker. Số byte đọc mỗi trang bị giới hạn bởi maxBytes.
+ *
+ * Dùng java.net.http.HttpClient thay vì Jsoup.connect để đếm được số byte thực nhận (trước khi giải nén gzip)
+ * và huỷ được việc tải: đóng body stream trước khi đọc hết sẽ đóng kết nối thay vì đọc nốt phần còn lại.
+ * Giống Jsoup.connect, chỉ nhận text/html và application/xhtml+xml, charset lấy từ header hoặc thẻ meta,
+ * timeout tính cho cả kết nối và đọc toàn bộ trang.
+ */
+public class PartialFetcher {
+    private static final Logger logger = LoggerFactory.getLogger(PartialFetcher.class);
+    private static final int CHUNK_SIZE = 8192;
+    private static final int TIMEOUT_MS = 30000;
+
+    private final String name;
+    private final String userAgent;
+    private final int maxBytes;
+    private final List<byte[]> requiredMarkers = new ArrayList<>();
+    private final int[] requiredGroups;
+    private final int groupCount;
+    private final List<byte[]> stopMarkers = new ArrayList<>();
+    private final int longestMarker;
+    private final boolean trackPositions;
+    // HTTP/1.1: huỷ stream là đóng socket. Với HTTP/2 server có thể đã gửi cả trang trong cửa sổ flow control.
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.ALWAYS)
+            .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+            .build();
+
+    private final AtomicLong pages = new AtomicLong();
+    private final AtomicLong earlyStops = new AtomicLong();
+    private final AtomicLong earlyStopsWithoutLength = new AtomicLong();
+    private final AtomicLong capped = new AtomicLong();
+    private final AtomicLong refetches = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * trackPositions: phân tích trang dừng sớm kèm vị trí nguồn, để kiểm tra phần tử nào bị cắt giữa chừng
+     */
+    public PartialFetcher(String name, String userAgent, int maxBytes, List<List<String>> requiredMarkerGroups,
+                          List<String> stopMarkers, boolean trackPositions) {
+        this.name = name;
+        this.userAgent = userAgent;
+        this.maxBytes = maxBytes;
+        this.trackPositions = trackPositions;
+        this.groupCount = requiredMarkerGroups.size();
+
+        List<Integer> groups = new ArrayList<>();
+        int longest = 0;
+        for (int g = 0; g < requiredMarkerGroups.size(); g++) {
+            for (String marker : requiredMarkerGroups.get(g)) {
+                byte[] bytes = marker.getBytes(StandardCharsets.UTF_8);
+                requiredMarkers.add(bytes);
+                groups.add(g);
+                longest = Math.max(longest, bytes.length);
+            }
+        }
+        for (String marker : stopMarkers) {
+            byte[] bytes = marker.getBytes(StandardCharsets.UTF_8);
+            this.stopMarkers.add(bytes);
+            longest = Math.max(longest, bytes.length);
+        }
+        this.requiredGroups = groups.stream().mapToInt(Integer::intValue).toArray();
+        this.longestMarker = longest;
+    }
+
+    /**
+     * Tải trang. Nếu allowEarlyStop là false thì đọc tới hết trang (vẫn giới hạn bởi maxBytes).
+     */
+    public Result fetch(String url, boolean allowEarlyStop) throws IOException {
+        HttpResponse<InputStream> response = send(url);
+        String finalUrl = response.uri().toString();
+        long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse(null);
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+
+        PageBuffer html = new PageBuffer();
+        boolean[] satisfied = new boolean[groupCount];
+        int remainingGroups = groupCount;
+        int stopSearchFrom = 0;
+        int stopIndex = -1;
+        boolean hitCap = false;
+        long read;
+
+        // Hết thời gian thì đóng stream từ luồng khác, lệnh read đang chờ sẽ ném IOException
+        InputStream body = response.body();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        CompletableFuture<Void> timeout = CompletableFuture.runAsync(() -> {
+            timedOut.set(true);
+            closeQuietly(body);
+        }, CompletableFuture.delayedExecutor(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        try (CountingInputStream counter = new CountingInputStream(body)) {
+            try (InputStream in = decode(counter, contentEncoding)) {
+                byte[] buffer = new byte[CHUNK_SIZE];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    int searchFrom = Math.max(0, html.size() - longestMarker + 1);
+                    html.write(buffer, 0, count);
+
+                    if (allowEarlyStop) {
+                        for (int i = 0; i < requiredMarkers.size() && remainingGroups > 0; i++) {
+                            int g = requiredGroups[i];
+                            if (satisfied[g]) {
+                                continue;
+                            }
+                            byte[] marker = requiredMarkers.get(i);
+                            int index = html.indexOf(marker, searchFrom);
+                            if (index >= 0) {
+                                satisfied[g] = true;
+                                remainingGroups--;
+                                stopSearchFrom = Math.max(stopSearchFrom, index + marker.length);
+                            }
+                        }
+                        if (remainingGroups == 0) {
+                            stopIndex = findStopMarker(html, Math.max(searchFrom, stopSearchFrom));
+                            if (stopIndex >= 0) {
+                                break;
+                            }
+                        }
+                    }
+
+                    if (counter.getCount() >= maxBytes) {
+                        hitCap = true;
+                        break;
+                    }
+                }
+            }
+            read = counter.getCount();
+        } catch (IOException e) {
+            if (timedOut.get()) {
+                throw new SocketTimeoutException("Read timed out fetching URL: " + url);
+            }
+            throw e;
+        } finally {
+            timeout.cancel(false);
+        }
+
+        pages.incrementAndGet();
+        bytesRead.addAndGet(read);
+        if (stopIndex >= 0) {
+            earlyStops.incrementAndGet();
+        } else if (hitCap) {
+            capped.incrementAndGet();
+            logger.warn("Reached {} byte limit while fetching: {}", maxBytes, url);
+        }
+        if (stopIndex >= 0 || hitCap) {
+            // Content-Length là số byte trên đường truyền (đã nén), so sánh với số byte thực nhận
+            if (contentLength >= 0) {
+                bytesSaved.addAndGet(Math.max(0, contentLength - read));
+            } else {
+                earlyStopsWithoutLength.incrementAndGet();
+            }
+        }
+
+        int length = stopIndex >= 0 ? stopIndex : html.size();
+        Parser parser = Parser.htmlParser().setTrackPosition(trackPositions && stopIndex >= 0);
+        // charset null thì Jsoup tự nhận từ BOM hoặc thẻ meta, mặc định UTF-8
+        Document document = Jsoup.parse(html.toInputStream(length), charsetOf(contentType), finalUrl, parser);
+        return new Result(document, stopIndex >= 0, hitCap);
+    }
+
+    public void recordRefetch() {
+        refetches.incrementAndGet();
+    }
+
+    /**
+     * Ghi log thống kê số trang dừng sớm và số byte tiết kiệm được
+     */
+    public void logStats() {
+        logger.info("Fetch stats for {}: pages={}, earlyStops={}, earlyStopsWithoutLength={}, capped={}, refetches={}, bytesRead={}, bytesSaved={}",
+                name, pages.get(), earlyStops.get(), earlyStopsWithoutLength.get(), capped.get(), refetches.get(),
+                bytesRead.get(), bytesSaved.get());
+    }
+
+    // Gửi request, ném HttpStatusException và UnsupportedMimeTypeException như Jsoup
+    private HttpResponse<InputStream> send(String url) throws IOException {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(toUri(url))
+                    .timeout(Duration.ofMillis(TIMEOUT_MS))
+                    .header("User-Agent", userAgent)
+                    .header("Accept-Encoding", "gzip")
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException("Invalid URL: " + url);
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching URL: " + url);
+        }
+
+        String finalUrl = response.uri().toString();
+        int status = response.statusCode();
+        if (status < 200 || status >= 400) {
+            response.body().close();
+            throw new HttpStatusException("HTTP error fetching URL", status, finalUrl);
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        if (contentType != null && !isHtml(contentType)) {
+            response.body().close();
+            throw new UnsupportedMimeTypeException("Unhandled content type. Must be text/html or application/xhtml+xml",
+                    contentType, finalUrl);
+        }
+        return response;
+    }
+
+    // Link lấy từ trang có thể chứa dấu cách hoặc ký tự tiếng Việt, mã hoá các ký tự này như Jsoup.connect
+    private static URI toUri(String url) {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            StringBuilder encoded = new StringBuilder(url.length() + 16);
+            url.codePoints().forEach(c -> {
+                if (c <= 0x20 || c >= 0x7f || "\"<>\\^`{|}".indexOf(c) >= 0) {
+                    for (byte b : new String(Character.toChars(c)).getBytes(StandardCharsets.UTF_8)) {
+                        encoded.append('%').append(String.format("%02X", b & 0xff));
+                    }
+                } else {
+                    encoded.append((char) c);
+                }
+            });
+            return URI.create(encoded.toString());
+        }
+    }
+
+    private boolean isHtml(String contentType) {
+        String mimeType = contentType.split(";", 2)[0].trim();
+        return mimeType.equalsIgnoreCase("text/html") || mimeType.equalsIgnoreCase("application/xhtml+xml");
+    }
+
+    private InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        if (contentEncoding.equalsIgnoreCase("gzip")) {
+            return new GZIPInputStream(in);
+        }
+        if (contentEncoding.equalsIgnoreCase("deflate")) {
+            return new InflaterInputStream(in);
+        }
+        return in;
+    }
+
+    private String charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String part : contentType.split(";")) {
+                part = part.trim();
+                if (part.regionMatches(true, 0, "charset=", 0, 8)) {
+                    return part.substring(8).replace("\"", "").trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    private int findStopMarker(PageBuffer html, int from) {
+        int stopIndex = -1;
+        for (byte[] marker : stopMarkers) {
+            int index = html.indexOf(marker, from);
+            if (index >= 0 && (stopIndex < 0 || index < stopIndex)) {
+                stopIndex = index;
+            }
+        }
+        return stopIndex;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Error closing response body", e);
+        }
+    }
+
+    /**
+     * Kết quả tải trang
+     */
+    public static class Result {
+        private final Document document;
+        private final boolean stoppedEarly;
+        private final boolean capped;
+
+        public Result(Document document, boolean stoppedEarly, boolean capped) {
+            this.document = document;
+            this.stoppedEarly = stoppedEarly;
+            this.capped = capped;
+        }
+
+        public Document getDocument() {
+            return document;
+        }
+
+        // Dừng vì đã gặp stopMarker, tải lại toàn bộ trang có thể lấy thêm nội dung
+        public boolean isStoppedEarly() {
+            return stoppedEarly;
+        }
+
+        // Dừng vì chạm giới hạn byte, tải lại cũng sẽ bị cắt ở cùng vị trí
+        public boolean isCapped() {
+            return capped;
+        }
+
+        public boolean isTruncated() {
+            return stoppedEarly || capped;
+        }
+    }
+
+    /**
+     * Các byte đã giải nén của trang. Marker là ASCII nên tìm trực tiếp trên byte, không cần giải mã charset.
+     */
+    private static class PageBuffer extends ByteArrayOutputStream {
+        PageBuffer() {
+            super(64 * 1024);
+        }
+
+        int indexOf(byte[] marker, int from) {
+            int last = count - marker.length;
+            for (int i = Math.max(0, from); i <= last; i++) {
+                int j = 0;
+                while (j < marker.length && buf[i + j] == marker[j]) {
+                    j++;
+                }
+                if (j == marker.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        InputStream toInputStream(int length) {
+            return new ByteArrayInputStream(buf, 0, length);
+        }
+    }
+
+    /**
+     * Đếm số byte đọc từ response
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
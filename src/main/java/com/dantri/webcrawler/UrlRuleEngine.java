@@ -0,0 +1,232 @@
+package com.dantri.webcrawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Phân loại URL trong một lần duyệt chuỗi, thay cho việc chạy nhiều regex trên cùng một URL.
+ * Luật được cấu hình trong url-rules.properties.
+ */
+public class UrlRuleEngine {
+    private static final Logger logger = LoggerFactory.getLogger(UrlRuleEngine.class);
+    private static final String RULES_RESOURCE = "/url-rules.properties";
+    private static final String DEFAULT_HOST = "https://dantri.com.vn/";
+    private static final String DEFAULT_PAGE_SUFFIX = ".htm";
+    private static final int DEFAULT_TIMESTAMP_DIGITS = 17;
+    // Timestamp dạng yyyyMMddHHmmssSSS
+    private static final int DATE_TIMESTAMP_DIGITS = 17;
+    private static final UrlRuleEngine DEFAULT = load();
+
+    public enum UrlType {
+        ARTICLE, CATEGORY, OTHER
+    }
+
+    /**
+     * Kết quả phân loại URL. Chuyên mục và timestamp được lưu dưới dạng vị trí trong chuỗi,
+     * chỉ tạo chuỗi con khi cần. timestampValue là các chữ số timestamp đọc được khi duyệt URL.
+     */
+    public record Classification(String url, boolean hostMatch, UrlType type,
+                                 int categoryStart, int categoryEnd,
+                                 int timestampStart, int timestampEnd, long timestampValue, int depth) {
+
+        public boolean isArticle() {
+            return type == UrlType.ARTICLE;
+        }
+
+        public boolean isCategory() {
+            return type == UrlType.CATEGORY;
+        }
+
+        public boolean hasTimestamp() {
+            return timestampStart >= 0;
+        }
+
+        public String category() {
+            return categoryStart < 0 ? null : url.substring(categoryStart, categoryEnd);
+        }
+
+        public String timestampText() {
+            return timestampStart < 0 ? null : url.substring(timestampStart, timestampEnd);
+        }
+
+        /**
+         * Thời điểm trong timestamp yyyyMMddHHmmssSSS theo múi giờ hệ thống, null nếu URL không có timestamp hợp lệ
+         */
+        public Long timestampMillis() {
+            if (timestampStart < 0 || timestampEnd - timestampStart != DATE_TIMESTAMP_DIGITS) {
+                return null;
+            }
+            long value = timestampValue;
+            int millis = (int) (value % 1000);
+            value /= 1000;
+            int second = (int) (value % 100);
+            value /= 100;
+            int minute = (int) (value % 100);
+            value /= 100;
+            int hour = (int) (value % 100);
+            value /= 100;
+            int day = (int) (value % 100);
+            value /= 100;
+            int month = (int) (value % 100);
+            int year = (int) (value / 100);
+            if (year < 1 || day < 1 || day > 31) {
+                return null;
+            }
+            try {
+                // Giống DateTimeFormatter mặc định (ResolverStyle.SMART): ngày vượt quá số ngày trong tháng được đưa về
+                // ngày cuối tháng, 24:00:00.000 là 0 giờ ngày hôm sau
+                LocalDate date = LocalDate.of(year, month, 1);
+                date = date.withDayOfMonth(Math.min(day, date.lengthOfMonth()));
+                LocalDateTime dateTime = hour == 24 && minute == 0 && second == 0 && millis == 0
+                        ? date.plusDays(1).atStartOfDay()
+                        : LocalDateTime.of(date, LocalTime.of(hour, minute, second, millis * 1_000_000));
+                return dateTime.atZone(ZoneId.systemDefault())
+                        .toInstant()
+                        .toEpochMilli();
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+    }
+
+    private final String host;
+    private final String pageSuffix;
+    private final int timestampDigits;
+    private final Set<String> excludedSections;
+
+    public UrlRuleEngine(String host, String pageSuffix, int timestampDigits, Set<String> excludedSections) {
+        this.host = host;
+        this.pageSuffix = pageSuffix;
+        this.timestampDigits = timestampDigits;
+        this.excludedSections = excludedSections;
+    }
+
+    public static UrlRuleEngine getDefault() {
+        return DEFAULT;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPageSuffix() {
+        return pageSuffix;
+    }
+
+    public Classification classify(String url) {
+        int length = url.length();
+        boolean hostMatch = url.startsWith(host);
+
+        // Timestamp: "-" + timestampDigits chữ số + pageSuffix ở cuối URL
+        boolean hasSuffix = url.endsWith(pageSuffix);
+        int timestampStart = -1;
+        int timestampEnd = -1;
+        long timestamp = -1;
+        if (hasSuffix) {
+            int digitsEnd = length - pageSuffix.length();
+            int digitsStart = digitsEnd - timestampDigits;
+            if (digitsStart > 0 && url.charAt(digitsStart - 1) == '-') {
+                long value = 0;
+                int i = digitsStart;
+                for (; i < digitsEnd; i++) {
+                    char c = url.charAt(i);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    value = value * 10 + (c - '0');
+                }
+                if (i == digitsEnd) {
+                    timestampStart = digitsStart;
+                    timestampEnd = digitsEnd;
+                    timestamp = value;
+                }
+            }
+        }
+
+        if (!hostMatch) {
+            return new Classification(url, false, UrlType.OTHER, -1, -1, timestampStart, timestampEnd, timestamp, 0);
+        }
+
+        // Đếm số đoạn path và vị trí đoạn đầu tiên
+        int pathStart = host.length();
+        int firstSlash = -1;
+        int depth = pathStart < length ? 1 : 0;
+        for (int i = pathStart; i < length; i++) {
+            if (url.charAt(i) == '/') {
+                if (firstSlash < 0) {
+                    firstSlash = i;
+                }
+                if (i + 1 < length) {
+                    depth++;
+                }
+            }
+        }
+
+        int categoryStart = -1;
+        int categoryEnd = -1;
+        if (firstSlash > pathStart) {
+            categoryStart = pathStart;
+            categoryEnd = firstSlash;
+        } else if (firstSlash < 0 && hasSuffix && timestampStart < 0 && length - pageSuffix.length() > pathStart) {
+            // Trang chuyên mục cấp 1: host/<category>.htm
+            categoryStart = pathStart;
+            categoryEnd = length - pageSuffix.length();
+        }
+
+        UrlType type;
+        if (categoryStart >= 0 && isExcluded(url, categoryStart, categoryEnd)) {
+            type = UrlType.OTHER;
+        } else if (timestampStart >= 0) {
+            type = firstSlash > pathStart && timestampStart > firstSlash + 1 ? UrlType.ARTICLE : UrlType.OTHER;
+        } else {
+            type = hasSuffix ? UrlType.CATEGORY : UrlType.OTHER;
+        }
+
+        return new Classification(url, true, type, categoryStart, categoryEnd, timestampStart, timestampEnd, timestamp, depth);
+    }
+
+    private boolean isExcluded(String url, int start, int end) {
+        if (excludedSections.isEmpty()) {
+            return false;
+        }
+        for (String section : excludedSections) {
+            if (section.length() == end - start && url.regionMatches(start, section, 0, section.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static UrlRuleEngine load() {
+        Properties properties = new Properties();
+        try (InputStream in = UrlRuleEngine.class.getResourceAsStream(RULES_RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (Exception e) {
+            logger.error("Error loading URL rules, using defaults", e);
+        }
+
+        Set<String> excludedSections = new HashSet<>();
+        for (String section : properties.getProperty("url.sections.excluded", "").split(",")) {
+            if (!section.isBlank()) {
+                excludedSections.add(section.trim());
+            }
+        }
+        return new UrlRuleEngine(
+                properties.getProperty("url.host", DEFAULT_HOST),
+                properties.getProperty("url.page.suffix", DEFAULT_PAGE_SUFFIX),
+                Integer.parseInt(properties.getProperty("url.timestamp.digits", String.valueOf(DEFAULT_TIMESTAMP_DIGITS))),
+                excludedSections);
+    }
+}
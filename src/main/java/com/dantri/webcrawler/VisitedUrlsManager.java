@@ -14,10 +14,17 @@ public class VisitedUrlsManager {
     private static final Logger logger = LoggerFactory.getLogger(VisitedUrlsManager.class);
     private static final String VISITED_URLS_FILE = "data/visited_urls.txt";
     private final Set<String> visitedUrls;
+    private boolean loaded; // File chỉ được đọc khi kiểm tra URL lần đầu
 
     public VisitedUrlsManager() {
         visitedUrls = new HashSet<>();
-        loadVisitedUrls();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            loadVisitedUrls();
+            loaded = true;
+        }
     }
 
     /**
@@ -44,7 +51,8 @@ public class VisitedUrlsManager {
         }
     }
 
-    public void addVisitedUrl(String url) {
+    public synchronized void addVisitedUrl(String url) {
+        ensureLoaded();
         if (visitedUrls.add(url)) {
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(VISITED_URLS_FILE, true))) {
                 writer.write(url);
@@ -55,7 +63,8 @@ public class VisitedUrlsManager {
         }
     }
 
-    public boolean isVisited(String url) {
+    public synchronized boolean isVisited(String url) {
+        ensureLoaded();
         return visitedUrls.contains(url);
     }
 }
\ No newline at end of file
@@ -6,20 +6,18 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.regex.Pattern;
 
 /**
  * Triển khai thuật toán BFS để thu thập bài viết từ website
  */
 public class WebCrawler {
     private static final Logger logger = LoggerFactory.getLogger(WebCrawler.class);
-    private static final String START_URL = "https://dantri.com.vn/";
-    private static final Pattern ARTICLE_URL_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/[^/]+/.*-\\d{17}\\.htm");
-    private static final Pattern CATEGORY_URL_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/.*\\.htm(?<!-\\d{17}\\.htm)");
+    private static final UrlRuleEngine URL_RULES = UrlRuleEngine.getDefault();
+    private static final String START_URL = URL_RULES.getHost();
     private static final int DEFAULT_MAX_LEVEL = 2;
     private static final int MAX_LEVEL_WITHIN_SIX_MONTHS = 5;
-    private static final int MAX_URLS_PER_CRAWL = 500;
-    private static final long SIX_MONTHS_MILLIS = 180L * 24 * 60 * 60 * 1000; // 6 tháng tính bằng milliseconds
+    static final int MAX_URLS_PER_CRAWL = 500;
+    static final long SIX_MONTHS_MILLIS = 180L * 24 * 60 * 60 * 1000; // 6 tháng tính bằng milliseconds
 
     private final LinkExtractor linkExtractor;
     private final ArticleParser articleParser;
@@ -37,28 +35,40 @@ public class WebCrawler {
      * Bắt đầu thuật toán
      */
     public void crawl() {
+        crawl(MAX_URLS_PER_CRAWL);
+    }
+
+    /**
+     * Bắt đầu thuật toán, dừng sau khi xử lý maxUrls URL
+     */
+    public void crawl(int maxUrls) {
         logger.info("Starting BFS crawl from: {}", START_URL);
 
-        int maxLevel = determineMaxLevel();
-        logger.info("Max level for this crawl: {}", maxLevel);
+        // Chỉ đọc metadata khi cần duyệt sâu hơn DEFAULT_MAX_LEVEL, để request đầu tiên không phải chờ
+        int maxLevel = -1;
 
         PriorityQueue<UrlWithLevel> queue = new PriorityQueue<>(Comparator.comparingInt(UrlWithLevel::getLevel));
         queue.add(new UrlWithLevel(START_URL, 0));
 
         int processedUrls = 0;
 
-        while (!queue.isEmpty() && processedUrls < MAX_URLS_PER_CRAWL) {
+        while (!queue.isEmpty() && processedUrls < maxUrls) {
             UrlWithLevel current = queue.poll();
             String url = current.getUrl();
             int level = current.getLevel();
 
-            if (level > maxLevel) {
+            if (level > DEFAULT_MAX_LEVEL && maxLevel < 0) {
+                maxLevel = determineMaxLevel();
+                logger.info("Max level for this crawl: {}", maxLevel);
+            }
+            if (level > DEFAULT_MAX_LEVEL && level > maxLevel) {
                 logger.debug("Reached max level ({}), skipping URL: {}", maxLevel, url);
                 continue;
             }
 
-            boolean isArticle = ARTICLE_URL_PATTERN.matcher(url).matches();
-            boolean isCategory = CATEGORY_URL_PATTERN.matcher(url).matches();
+            UrlRuleEngine.Classification classification = URL_RULES.classify(url);
+            boolean isArticle = classification.isArticle();
+            boolean isCategory = classification.isCategory();
 
             if (isArticle) {
                 if (visitedUrlsManager.isVisited(url)) {
@@ -81,8 +91,9 @@ public class WebCrawler {
             }
 
             for (String outlink : outlinks) {
-                boolean outlinkIsArticle = ARTICLE_URL_PATTERN.matcher(outlink).matches();
-                boolean outlinkIsCategory = CATEGORY_URL_PATTERN.matcher(outlink).matches();
+                UrlRuleEngine.Classification outlinkClassification = URL_RULES.classify(outlink);
+                boolean outlinkIsArticle = outlinkClassification.isArticle();
+                boolean outlinkIsCategory = outlinkClassification.isCategory();
 
                 if (outlinkIsArticle) {
                     if (visitedUrlsManager.isVisited(outlink)) {
@@ -107,13 +118,15 @@ public class WebCrawler {
             }
 
             processedUrls++;
-            if (processedUrls >= MAX_URLS_PER_CRAWL) {
-                logger.info("Reached max URLs per crawl ({}), stopping. Queue size: {}", MAX_URLS_PER_CRAWL, queue.size());
+            if (processedUrls >= maxUrls) {
+                logger.info("Reached max URLs per crawl ({}), stopping. Queue size: {}", maxUrls, queue.size());
                 break;
             }
         }
 
         logger.info("Finished BFS crawl. Processed {} URLs.", processedUrls);
+        linkExtractor.logStats();
+        articleParser.logStats();
     }
 
     // Xác định số cấp để duyệt
@@ -0,0 +1,158 @@
+package com.dantri.webcrawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kiểm tra ghi rồi đọc lại file dạng cột
+ */
+class ColumnarFileTest {
+    private static final long BASE_TIME = 1_700_000_000_000L;
+    private static final int ROW_COUNT = 2500; // 3 block
+
+    @TempDir
+    File dir;
+
+    @Test
+    void roundTripsEveryColumn() throws IOException {
+        List<Row> rows = rows(ROW_COUNT);
+        List<Row> shuffled = new ArrayList<>(rows);
+        Collections.shuffle(shuffled, new Random(1));
+        File file = new File(dir, "all.dcol");
+        ColumnarFile.write(file, toColumnar(shuffled));
+
+        assertEquals(3, ColumnarFile.readBlocks(file).size());
+        assertEquals(rows.stream().map(Row::publishTime).collect(Collectors.toList()),
+                ColumnarFile.readPublishTimes(file, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertColumns(rows, file, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertFalse(new File(dir, "all.dcol.tmp").exists());
+    }
+
+    @Test
+    void filtersRowsInPartiallyOverlappingBlocks() throws IOException {
+        List<Row> rows = rows(ROW_COUNT);
+        File file = new File(dir, "range.dcol");
+        ColumnarFile.write(file, toColumnar(rows));
+
+        // Khoảng bắt đầu giữa block đầu và kết thúc giữa block thứ hai, block thứ ba bị bỏ qua
+        long from = rows.get(500).publishTime();
+        long to = rows.get(1500).publishTime();
+        List<Row> expected = rows.subList(500, 1501);
+        assertEquals(expected.stream().map(Row::publishTime).collect(Collectors.toList()),
+                ColumnarFile.readPublishTimes(file, from, to));
+        assertColumns(expected, file, from, to);
+
+        assertTrue(ColumnarFile.readStringColumn(file, ColumnarFile.Column.URL, 0, BASE_TIME - 1).isEmpty());
+    }
+
+    @Test
+    void nullAuthorAndDescriptionAreReadAsEmpty() throws IOException {
+        File file = new File(dir, "nulls.dcol");
+        ColumnarFile.write(file, List.of(
+                new ColumnarFile.Row("https://dantri.com.vn/a/b-1.htm", "Tiêu đề", null, "Nội dung", BASE_TIME, null, "a"),
+                new ColumnarFile.Row("https://dantri.com.vn/a/c-2.htm", "Tiêu đề 2", "Mô tả", "Nội dung 2", BASE_TIME + 1, "Tác giả", "a")));
+
+        assertEquals(List.of("", "Mô tả"), ColumnarFile.readStringColumn(file, ColumnarFile.Column.DESCRIPTION, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertEquals(List.of("", "Tác giả"), ColumnarFile.readStringColumn(file, ColumnarFile.Column.AUTHOR, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void writesEmptyFile() throws IOException {
+        File file = new File(dir, "empty.dcol");
+        ColumnarFile.write(file, Collections.emptyList());
+
+        assertTrue(ColumnarFile.readBlocks(file).isEmpty());
+        assertTrue(ColumnarFile.readPublishTimes(file, Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+        assertTrue(ColumnarFile.readStringColumn(file, ColumnarFile.Column.CONTENT, Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void streamingWriterSortsEachBlock() throws IOException {
+        // Ghi theo thứ tự giảm dần: mỗi block được sắp xếp riêng, thống kê min/max vẫn đúng
+        List<Row> rows = rows(ROW_COUNT);
+        File file = new File(dir, "stream.dcol");
+        try (ColumnarFile.Writer writer = new ColumnarFile.Writer(file)) {
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                writer.add(rows.get(i).toColumnar());
+            }
+            writer.commit();
+        }
+
+        for (ColumnarFile.BlockInfo block : ColumnarFile.readBlocks(file)) {
+            assertTrue(block.getMinPublishTime() <= block.getMaxPublishTime());
+        }
+        long from = rows.get(100).publishTime();
+        long to = rows.get(2000).publishTime();
+        List<Long> times = ColumnarFile.readPublishTimes(file, from, to);
+        Collections.sort(times);
+        assertEquals(rows.subList(100, 2001).stream().map(Row::publishTime).collect(Collectors.toList()), times);
+    }
+
+    @Test
+    void writerWithoutCommitKeepsPreviousFile() throws IOException {
+        File file = new File(dir, "keep.dcol");
+        ColumnarFile.write(file, toColumnar(rows(10)));
+
+        try (ColumnarFile.Writer writer = new ColumnarFile.Writer(file)) {
+            writer.add(rows(1).get(0).toColumnar());
+        }
+
+        assertEquals(10, ColumnarFile.readPublishTimes(file, Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertFalse(new File(dir, "keep.dcol.tmp").exists());
+    }
+
+    private void assertColumns(List<Row> expected, File file, long from, long to) throws IOException {
+        assertColumn(expected, Row::url, file, ColumnarFile.Column.URL, from, to);
+        assertColumn(expected, Row::title, file, ColumnarFile.Column.TITLE, from, to);
+        assertColumn(expected, Row::description, file, ColumnarFile.Column.DESCRIPTION, from, to);
+        assertColumn(expected, Row::content, file, ColumnarFile.Column.CONTENT, from, to);
+        assertColumn(expected, Row::author, file, ColumnarFile.Column.AUTHOR, from, to);
+        assertColumn(expected, Row::category, file, ColumnarFile.Column.CATEGORY, from, to);
+    }
+
+    private void assertColumn(List<Row> expected, Function<Row, String> getter, File file,
+                              ColumnarFile.Column column, long from, long to) throws IOException {
+        assertEquals(expected.stream().map(getter).collect(Collectors.toList()),
+                ColumnarFile.readStringColumn(file, column, from, to), column.name());
+    }
+
+    // Các dòng có publishTime tăng dần, độ lệch không đều để kiểm tra delta encoding
+    private static List<Row> rows(int count) {
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>(count);
+        long time = BASE_TIME;
+        for (int i = 0; i < count; i++) {
+            time += 1 + random.nextInt(3_600_000);
+            rows.add(new Row("https://dantri.com.vn/the-thao/bai-viet-" + i + ".htm",
+                    "Tiêu đề " + i,
+                    "Mô tả bài viết " + i,
+                    "Nội dung " + "đoạn văn ".repeat(random.nextInt(50)) + i,
+                    time,
+                    "Tác giả " + (i % 7),
+                    i % 3 == 0 ? "the-thao" : "kinh-doanh"));
+        }
+        return rows;
+    }
+
+    private static List<ColumnarFile.Row> toColumnar(List<Row> rows) {
+        return rows.stream().map(Row::toColumnar).collect(Collectors.toList());
+    }
+
+    private record Row(String url, String title, String description, String content, long publishTime,
+                       String author, String category) {
+        ColumnarFile.Row toColumnar() {
+            return new ColumnarFile.Row(url, title, description, content, publishTime, author, category);
+        }
+    }
+}
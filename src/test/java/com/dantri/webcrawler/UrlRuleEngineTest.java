@@ -0,0 +1,123 @@
+package com.dantri.webcrawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * So sánh UrlRuleEngine với các regex trước đây trong LinkExtractor, WebCrawler và ArticleStorage
+ */
+class UrlRuleEngineTest {
+    private static final Pattern DANTRI_URL_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/.*");
+    private static final Pattern ARTICLE_URL_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/[^/]+/.*-\\d{17}\\.htm");
+    private static final Pattern CATEGORY_URL_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/.*\\.htm(?<!-\\d{17}\\.htm)");
+    private static final Pattern URL_CATEGORY_PATTERN = Pattern.compile("https://dantri\\.com\\.vn/([^/]+)/.*");
+    private static final Pattern URL_TIMESTAMP_PATTERN = Pattern.compile(".*-(\\d{17})\\.htm");
+    private static final DateTimeFormatter URL_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private static final List<String> URLS = List.of(
+            "https://dantri.com.vn/",
+            "https://dantri.com.vn/.htm",
+            "https://dantri.com.vn/the-thao.htm",
+            "https://dantri.com.vn/the-thao/bong-da.htm",
+            "https://dantri.com.vn/the-thao/trang-2.htm",
+            "https://dantri.com.vn/the-thao/a-b-20240101123045123.htm",
+            "https://dantri.com.vn/the-thao/-20240101123045123.htm",
+            "https://dantri.com.vn/the-thao/x/y-20240101123045123.htm",
+            "https://dantri.com.vn/a-20240101123045123.htm",
+            "https://dantri.com.vn//a-20240101123045123.htm",
+            "https://dantri.com.vn/x/a-2024010112304512.htm",
+            "https://dantri.com.vn/x/a-202401011230451234.htm",
+            "https://dantri.com.vn/x/a-2024010112304512a.htm",
+            "https://dantri.com.vn/x/a-20240101123045123.html",
+            "https://dantri.com.vn/x/a-20241301123045123.htm",
+            "https://dantri.com.vn/x/a-20240230235959999.htm",
+            "https://dantri.com.vn/x/a-20241231235959999.htm",
+            "https://dantri.com.vn/x/a-20240132000000000.htm",
+            "https://dantri.com.vn/x/a-20240101240000000.htm",
+            "https://dantri.com.vn/x/a-00000101000000000.htm",
+            "https://dantri.com.vn/x/a-20241231240000000.htm",
+            "https://dantri.com.vn/x/a-20240101240000001.htm",
+            "https://dantri.com.vn/x/a-20240101126000000.htm",
+            "https://dantri.com.vn/x/a-20240100000000000.htm",
+            "https://dantri.com.vn/x/",
+            "https://dantri.com.vn/x/a.htm?page=2",
+            "https://dantri.com.vn",
+            "http://dantri.com.vn/x/a-20240101123045123.htm",
+            "https://example.com/x/a-20240101123045123.htm"
+    );
+
+    private final UrlRuleEngine engine = new UrlRuleEngine("https://dantri.com.vn/", ".htm", 17, Collections.emptySet());
+
+    @Test
+    void classificationMatchesPreviousPatterns() {
+        for (String url : URLS) {
+            UrlRuleEngine.Classification classification = engine.classify(url);
+            assertEquals(DANTRI_URL_PATTERN.matcher(url).matches(), classification.hostMatch(), "host: " + url);
+            assertEquals(ARTICLE_URL_PATTERN.matcher(url).matches(), classification.isArticle(), "article: " + url);
+            assertEquals(CATEGORY_URL_PATTERN.matcher(url).matches(), classification.isCategory(), "category: " + url);
+        }
+    }
+
+    @Test
+    void storageFieldsMatchPreviousPatterns() {
+        for (String url : URLS) {
+            UrlRuleEngine.Classification classification = engine.classify(url);
+
+            Matcher timestampMatcher = URL_TIMESTAMP_PATTERN.matcher(url);
+            assertEquals(timestampMatcher.matches() ? timestampMatcher.group(1) : null, classification.timestampText(), "timestamp: " + url);
+
+            // ArticleStorage chỉ lưu URL có timestamp, khi đó chuyên mục phải trùng với regex cũ
+            if (classification.hasTimestamp()) {
+                Matcher categoryMatcher = URL_CATEGORY_PATTERN.matcher(url);
+                assertEquals(categoryMatcher.matches() ? categoryMatcher.group(1) : null, classification.category(), "category: " + url);
+            }
+        }
+    }
+
+    @Test
+    void timestampMillisMatchesPreviousParsing() {
+        for (String url : URLS) {
+            UrlRuleEngine.Classification classification = engine.classify(url);
+            Long expected = null;
+            if (classification.hasTimestamp()) {
+                try {
+                    expected = LocalDateTime.parse(classification.timestampText(), URL_TIMESTAMP_FORMAT)
+                            .atZone(ZoneId.systemDefault())
+                            .toInstant()
+                            .toEpochMilli();
+                } catch (Exception e) {
+                    expected = null;
+                }
+            }
+            assertEquals(expected, classification.timestampMillis(), "timestampMillis: " + url);
+        }
+    }
+
+    @Test
+    void topLevelCategoryPage() {
+        UrlRuleEngine.Classification classification = engine.classify("https://dantri.com.vn/the-thao.htm");
+        assertTrue(classification.isCategory());
+        assertEquals(1, classification.depth());
+        assertEquals("the-thao", classification.category());
+
+        UrlRuleEngine.Classification empty = engine.classify("https://dantri.com.vn/.htm");
+        assertTrue(empty.isCategory());
+        assertNull(empty.category());
+    }
+
+    @Test
+    void excludedSectionIsNotArticleOrCategory() {
+        UrlRuleEngine excluding = new UrlRuleEngine("https://dantri.com.vn/", ".htm", 17, Collections.singleton("video"));
+        assertEquals(UrlRuleEngine.UrlType.OTHER, excluding.classify("https://dantri.com.vn/video/a-20240101123045123.htm").type());
+        assertTrue(excluding.classify("https://dantri.com.vn/the-thao/a-20240101123045123.htm").isArticle());
+    }
+}